@@ -2,6 +2,7 @@ package ca.chibueze_ekwomadu;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * A SpringBoot application that utilizes LOMBOK library, SESSIONS, H2 DATABASE, SPRING SECURITY, 
@@ -13,6 +14,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * November 30, 2022
  */
 @SpringBootApplication
+@EnableScheduling
 public class LibraryDatabaseApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,112 @@
+package ca.chibueze_ekwomadu.security;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import ca.chibueze_ekwomadu.beans.Message;
+
+/**
+ * This class throttles write requests (POST /books, /user/add-review, /admin/add-book, ...)
+ * per user, or per IP address for anonymous callers, and caps how many of them run at once.
+ * Rejected requests get a 429 status with a 'Retry-After' header.
+ * It is added to the security filter chain in SecurityConfig, so it is not a @Component;
+ * that would also register it as a plain servlet filter running before authentication.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+	private final RateLimiter rateLimiter;
+	private final ObjectMapper mapper;
+
+	/**
+	 * Overloaded constructor of this class
+	 * @param rateLimiter holds the token buckets and the concurrent writes limit
+	 * @param mapper the application's ObjectMapper, used to write the error message
+	 */
+	public RateLimitFilter(RateLimiter rateLimiter, ObjectMapper mapper) {
+		this.rateLimiter = rateLimiter;
+		this.mapper = mapper;
+	}
+
+	/**
+	 * Only write requests are throttled, and the h2 console is left alone. Logging in and out
+	 * never reach this filter; earlier filters in the chain answer them.
+	 */
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String method = request.getMethod();
+		if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)
+				|| HttpMethod.OPTIONS.matches(method)) {
+			return true;
+		}
+		//servlet path depends on how the target servlet is mapped, so match the URI instead
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		return path.startsWith("/h2-console");
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+			FilterChain filterChain) throws ServletException, IOException {
+		//take the permit first, so a client turned away for global load keeps its token
+		if (!rateLimiter.tryAcquireWrite()) {
+			reject(response, TimeUnit.SECONDS.toNanos(1), "Server is busy, try again shortly");
+			return;
+		}
+		long waitNanos = rateLimiter.tryConsume(clientKey(request));
+		if (waitNanos > 0) {
+			rateLimiter.releaseWrite();
+			reject(response, waitNanos, "Too many requests, slow down");
+			return;
+		}
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			rateLimiter.releaseWrite();
+		}
+	}
+
+	/**
+	 * Gets the bucket key of the caller: the username once logged in, else the IP address
+	 * @param request the current request
+	 * @return "user:<name>" or "ip:<address>"
+	 */
+	private String clientKey(HttpServletRequest request) {
+		Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+		if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+			return "user:" + auth.getName();
+		}
+		return "ip:" + request.getRemoteAddr();
+	}
+
+	/**
+	 * Retry-After is whole seconds, so the wait is rounded up and is at least 1
+	 * @param waitNanos the time until the request would be admitted
+	 * @return the value of the Retry-After header
+	 */
+	static long retryAfterSeconds(long waitNanos) {
+		long second = TimeUnit.SECONDS.toNanos(1);
+		return Math.max(1, (waitNanos + second - 1) / second);
+	}
+
+	private void reject(HttpServletResponse response, long waitNanos, String message) throws IOException {
+		response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+		response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds(waitNanos)));
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		mapper.writeValue(response.getOutputStream(), new Message("error", message));
+	}
+}
@@ -0,0 +1,190 @@
+package ca.chibueze_ekwomadu.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class holds the admission control state for write requests: one token bucket
+ * per client key (username or IP address) and a global limit on concurrent writes.
+ * The buckets are updated with compare-and-set only, so no lock is shared between clients.
+ * At most 'max-tracked-clients' buckets are kept. Clients beyond that are spread by hash over
+ * a fixed set of shared overflow buckets until the scheduled sweep frees idle buckets.
+ */
+@Component
+public class RateLimiter {
+
+	//marks a bucket the sweep has taken out of the map; callers holding it look it up again
+	private static final long RETIRED = Long.MIN_VALUE;
+	private static final int OVERFLOW_STRIPES = 64;
+
+	private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+	private final AtomicInteger trackedClients = new AtomicInteger();
+	private final TokenBucket[] overflow = new TokenBucket[OVERFLOW_STRIPES];
+	private final Semaphore writePermits;
+	private final long capacity;
+	private final long intervalNanos;
+	private final int maxTrackedClients;
+	private final LongSupplier clock;
+
+	/**
+	 * Overloaded constructor of this class. The values come from application.properties
+	 * @param capacity the number of writes a client can burst before being throttled
+	 * @param refillPerSecond the number of tokens given back to each client every second
+	 * @param maxConcurrentWrites the number of write requests allowed to run at the same time
+	 * @param maxTrackedClients the number of clients given their own bucket
+	 */
+	@Autowired
+	public RateLimiter(@Value("${library.rate-limit.capacity}") long capacity,
+			@Value("${library.rate-limit.refill-per-second}") double refillPerSecond,
+			@Value("${library.rate-limit.max-concurrent-writes}") int maxConcurrentWrites,
+			@Value("${library.rate-limit.max-tracked-clients}") int maxTrackedClients) {
+		this(capacity, refillPerSecond, maxConcurrentWrites, maxTrackedClients, System::nanoTime);
+	}
+
+	/**
+	 * Overloaded constructor of this class, with the time source used for the buckets
+	 * @param clock returns the current time in nanoseconds, like System.nanoTime()
+	 */
+	RateLimiter(long capacity, double refillPerSecond, int maxConcurrentWrites, int maxTrackedClients,
+			LongSupplier clock) {
+		if (capacity < 1 || refillPerSecond <= 0 || maxConcurrentWrites < 1 || maxTrackedClients < 1) {
+			throw new IllegalArgumentException(
+					"Rate limit capacity, refill rate, concurrency and tracked clients must be positive");
+		}
+		this.capacity = capacity;
+		this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+		this.writePermits = new Semaphore(maxConcurrentWrites);
+		this.maxTrackedClients = maxTrackedClients;
+		this.clock = clock;
+		long now = clock.getAsLong();
+		for (int i = 0; i < OVERFLOW_STRIPES; i++) {
+			overflow[i] = new TokenBucket(now);
+		}
+	}
+
+	/**
+	 * Takes one token from the bucket of the given client
+	 * @param key the username, or IP address for anonymous callers
+	 * @return 0 if the request is admitted, else the number of nanoseconds until it would be
+	 */
+	public long tryConsume(String key) {
+		long now = clock.getAsLong();
+		while (true) {
+			long wait = bucketFor(key, now).tryConsume(now);
+			if (wait >= 0) {
+				return wait;
+			}
+			//the bucket was swept while we held it; use the one now in the map
+		}
+	}
+
+	/**
+	 * Reserves a slot among the concurrent writes without blocking
+	 * @return true if a slot was reserved; it must then be given back with releaseWrite()
+	 */
+	public boolean tryAcquireWrite() {
+		return writePermits.tryAcquire();
+	}
+
+	/**
+	 * Gives back a slot reserved with tryAcquireWrite()
+	 */
+	public void releaseWrite() {
+		writePermits.release();
+	}
+
+	/**
+	 * Removes buckets that have refilled completely; they hold no state worth keeping.
+	 * Runs on the scheduler thread every second, never on a request thread.
+	 */
+	@Scheduled(fixedDelay = 1000)
+	public void sweep() {
+		if (trackedClients.get() == 0) {
+			return;
+		}
+		long now = clock.getAsLong();
+		for (Map.Entry<String, TokenBucket> entry : buckets.entrySet()) {
+			if (entry.getValue().retireIfFull(now) && buckets.remove(entry.getKey(), entry.getValue())) {
+				trackedClients.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of clients that currently have their own bucket
+	 */
+	int getTrackedClients() {
+		return trackedClients.get();
+	}
+
+	private TokenBucket bucketFor(String key, long now) {
+		TokenBucket bucket = buckets.get(key);
+		if (bucket != null) {
+			return bucket;
+		}
+		if (trackedClients.incrementAndGet() > maxTrackedClients) {
+			trackedClients.decrementAndGet();
+			return overflow[Math.floorMod(key.hashCode(), OVERFLOW_STRIPES)];
+		}
+		TokenBucket created = new TokenBucket(now);
+		TokenBucket existing = buckets.putIfAbsent(key, created);
+		if (existing != null) {
+			trackedClients.decrementAndGet();
+			return existing;
+		}
+		return created;
+	}
+
+	/**
+	 * A token bucket stored as a single "theoretical arrival time" (GCRA). Each admitted
+	 * request pushes that time forward by one refill interval; a request is rejected when
+	 * doing so would put it more than 'capacity' intervals ahead of now.
+	 */
+	private class TokenBucket {
+		private final AtomicLong arrivalTime;
+
+		TokenBucket(long now) {
+			this.arrivalTime = new AtomicLong(now);
+		}
+
+		/**
+		 * @return 0 if admitted, the wait in nanoseconds if rejected, or -1 if retired
+		 */
+		long tryConsume(long now) {
+			while (true) {
+				long current = arrivalTime.get();
+				if (current == RETIRED) {
+					return -1;
+				}
+				long next = Math.max(current, now) + intervalNanos;
+				long allowedAt = next - capacity * intervalNanos;
+				if (allowedAt - now > 0) {
+					return allowedAt - now;
+				}
+				if (arrivalTime.compareAndSet(current, next)) {
+					return 0;
+				}
+			}
+		}
+
+		/**
+		 * Retires the bucket if it is full. A token taken concurrently changes the arrival
+		 * time, so the compare-and-set fails and the bucket stays in use.
+		 */
+		boolean retireIfFull(long now) {
+			long current = arrivalTime.get();
+			return current != RETIRED && current - now <= 0 && arrivalTime.compareAndSet(current, RETIRED);
+		}
+	}
+}
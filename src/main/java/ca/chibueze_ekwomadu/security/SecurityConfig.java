@@ -10,6 +10,9 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.provisioning.JdbcUserDetailsManager;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This is the Web Security configuration class
@@ -23,19 +26,27 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 	private LoggingAccessDeniedHandler accessDeniedHandler;
 	private BCryptPasswordEncoder encoder;
 	private DataSource dataSource;
+	private RateLimiter rateLimiter;
+	private ObjectMapper mapper;
 	
 	/**
 	 * Overloaded constructor of this class
 	 * @param accessDeniedHandler is initialized here
 	 * @param encoder is initialized here. It is annotated with @Lazy to avoid errors
 	 * @param dataSource is initialized here
+	 * @param rateLimiter is initialized here
+	 * @param mapper is initialized here
 	 */
 	public SecurityConfig(LoggingAccessDeniedHandler accessDeniedHandler,
 			@Lazy BCryptPasswordEncoder encoder,
-			DataSource dataSource) {
+			DataSource dataSource,
+			RateLimiter rateLimiter,
+			ObjectMapper mapper) {
 		this.accessDeniedHandler = accessDeniedHandler;
 		this.encoder = encoder;
 		this.dataSource = dataSource;
+		this.rateLimiter = rateLimiter;
+		this.mapper = mapper;
 	}
 	
 	/**
@@ -60,8 +71,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 	}
 	
 	/**
-	 * This is a configuration method. Here, user roles, path restrictions, login and
-	 * accessDeniedHandler are created/configured.
+	 * This is a configuration method. Here, user roles, path restrictions, login,
+	 * accessDeniedHandler and write rate limiting are created/configured.
 	 */
 	@Override
 	protected void configure(HttpSecurity http) throws Exception {
@@ -84,6 +95,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter{
 		//the console from the same server (LocalHost)
 		http.csrf().disable();
 		http.headers().frameOptions().disable();
+		//throttle writes only after the user is known and allowed on the path
+		http.addFilterAfter(new RateLimitFilter(rateLimiter, mapper), FilterSecurityInterceptor.class);
 	}
 	
 	/**
@@ -0,0 +1,38 @@
+package ca.chibueze_ekwomadu.load;
+
+/**
+ * The endpoints driven by the load test, with the role needed to call them and their
+ * default share of the request mix. Shares can be changed with 'load.weight.<name>'.
+ */
+enum Endpoint {
+	HOME("home", Role.ANONYMOUS, 30),
+	BOOK_REVIEWS("book-reviews", Role.ANONYMOUS, 25),
+	REST_BOOK("rest-book", Role.ANONYMOUS, 20),
+	USER_HOME("user-home", Role.USER, 10),
+	ADD_REVIEW("add-review", Role.USER, 10),
+	ADMIN_ADD_BOOK("admin-add-book", Role.ADMIN, 5);
+
+	enum Role { ANONYMOUS, USER, ADMIN }
+
+	private final String key;
+	private final Role role;
+	private final int defaultWeight;
+
+	Endpoint(String key, Role role, int defaultWeight) {
+		this.key = key;
+		this.role = role;
+		this.defaultWeight = defaultWeight;
+	}
+
+	String getKey() {
+		return key;
+	}
+
+	Role getRole() {
+		return role;
+	}
+
+	int getDefaultWeight() {
+		return defaultWeight;
+	}
+}
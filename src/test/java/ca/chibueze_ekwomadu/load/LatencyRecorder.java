@@ -0,0 +1,108 @@
+package ca.chibueze_ekwomadu.load;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Collects response times, throttled (429) responses and failures per endpoint. Only 200
+ * responses count towards the response times: a 429 comes back at once and a timed out
+ * call never answered, so either would skew the percentiles. Each
+ * virtual user owns one recorder, so recording needs no locking; the recorders are merged
+ * once the run is over.
+ */
+class LatencyRecorder {
+
+	private final Map<Endpoint, long[]> samples = new EnumMap<>(Endpoint.class);
+	private final Map<Endpoint, Integer> counts = new EnumMap<>(Endpoint.class);
+	private final Map<Endpoint, Integer> requests = new EnumMap<>(Endpoint.class);
+	private final Map<Endpoint, Integer> throttled = new EnumMap<>(Endpoint.class);
+	private final Map<Endpoint, Integer> errors = new EnumMap<>(Endpoint.class);
+
+	/**
+	 * Records one request
+	 * @param endpoint the endpoint that was called
+	 * @param nanos the response time in nanoseconds
+	 * @param status the HTTP status, or 0 if no response was received
+	 */
+	void record(Endpoint endpoint, long nanos, int status) {
+		requests.merge(endpoint, 1, Integer::sum);
+		if (status == 200) {
+			addSample(endpoint, nanos);
+		} else if (status == 429) {
+			throttled.merge(endpoint, 1, Integer::sum);
+		} else if (status != 200) {
+			errors.merge(endpoint, 1, Integer::sum);
+		}
+	}
+
+	/**
+	 * Adds the samples of another recorder to this one
+	 * @param other the recorder to merge in
+	 */
+	void merge(LatencyRecorder other) {
+		for (Endpoint endpoint : Endpoint.values()) {
+			for (long nanos : other.getSamples(endpoint)) {
+				addSample(endpoint, nanos);
+			}
+			requests.merge(endpoint, other.getRequests(endpoint), Integer::sum);
+			throttled.merge(endpoint, other.getThrottled(endpoint), Integer::sum);
+			errors.merge(endpoint, other.getErrors(endpoint), Integer::sum);
+		}
+	}
+
+	/**
+	 * @param endpoint the endpoint to look up
+	 * @return a sorted copy of the response times of 200 responses, in nanoseconds
+	 */
+	long[] getSamples(Endpoint endpoint) {
+		long[] values = samples.get(endpoint);
+		if (values == null) {
+			return new long[0];
+		}
+		long[] copy = Arrays.copyOf(values, counts.get(endpoint));
+		Arrays.sort(copy);
+		return copy;
+	}
+
+	/**
+	 * @param endpoint the endpoint to look up
+	 * @return every request sent, whatever its outcome
+	 */
+	int getRequests(Endpoint endpoint) {
+		return requests.getOrDefault(endpoint, 0);
+	}
+
+	int getThrottled(Endpoint endpoint) {
+		return throttled.getOrDefault(endpoint, 0);
+	}
+
+	int getErrors(Endpoint endpoint) {
+		return errors.getOrDefault(endpoint, 0);
+	}
+
+	/**
+	 * Nearest-rank percentile of sorted samples
+	 * @param sorted response times sorted in ascending order
+	 * @param percentile a value between 0 and 100
+	 * @return the percentile in milliseconds, or NaN if no request got a 200 response
+	 */
+	static double percentileMillis(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return Double.NaN;
+		}
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+	}
+
+	private void addSample(Endpoint endpoint, long nanos) {
+		int count = counts.getOrDefault(endpoint, 0);
+		long[] values = samples.computeIfAbsent(endpoint, e -> new long[64]);
+		if (count == values.length) {
+			values = Arrays.copyOf(values, count * 2);
+			samples.put(endpoint, values);
+		}
+		values[count] = nanos;
+		counts.put(endpoint, count + 1);
+	}
+}
@@ -0,0 +1,220 @@
+package ca.chibueze_ekwomadu.load;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated visitor. It logs in with its own session, then sends a fixed number of
+ * requests picked at random (from a seeded generator) among the endpoints its role allows.
+ * Recording starts once every virtual user has finished its warmup requests.
+ * Anonymous endpoints are called without the session cookie.
+ * A virtual user that fails before the recording starts breaks the barrier, so the others
+ * fail too instead of waiting for it.
+ */
+class VirtualUser implements Callable<LatencyRecorder> {
+
+	private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+	private final URI baseUri;
+	private final String username;
+	private final String password;
+	private final Endpoint.Role role;
+	private final List<Long> bookIds;
+	private final AtomicLong sequence;
+	private final Random random;
+	private final int warmupRequests;
+	private final int requests;
+	private final CyclicBarrier warmedUp;
+	private final long timeoutSeconds;
+	private final List<Endpoint> endpoints = new ArrayList<>();
+	private final List<Integer> cumulativeWeights = new ArrayList<>();
+	private final HttpClient session;
+	private final HttpClient anonymous;
+
+	/**
+	 * Overloaded constructor of this class
+	 * @param baseUri the address of the running application
+	 * @param username the user to log in as
+	 * @param password the password of that user
+	 * @param role USER or ADMIN; decides which endpoints are picked
+	 * @param weights the share of each endpoint in the mix
+	 * @param bookIds the ids of the seeded books
+	 * @param sequence shared counter used to keep review texts and book titles unique
+	 * @param seed seed of the random generator, so runs are repeatable
+	 * @param warmupRequests requests sent before recording starts
+	 * @param requests requests recorded
+	 * @param warmedUp barrier shared by all virtual users, passed once warmup is over
+	 * @param timeoutSeconds how long to wait at the barrier for the other virtual users
+	 */
+	VirtualUser(URI baseUri, String username, String password, Endpoint.Role role,
+			Map<Endpoint, Integer> weights, List<Long> bookIds, AtomicLong sequence,
+			long seed, int warmupRequests, int requests, CyclicBarrier warmedUp,
+			long timeoutSeconds) {
+		this.baseUri = baseUri;
+		this.username = username;
+		this.password = password;
+		this.role = role;
+		this.bookIds = bookIds;
+		this.sequence = sequence;
+		this.random = new Random(seed);
+		this.warmupRequests = warmupRequests;
+		this.requests = requests;
+		this.warmedUp = warmedUp;
+		this.timeoutSeconds = timeoutSeconds;
+		int total = 0;
+		for (Map.Entry<Endpoint, Integer> entry : weights.entrySet()) {
+			Endpoint endpoint = entry.getKey();
+			if (entry.getValue() > 0 && canCall(endpoint)) {
+				total += entry.getValue();
+				endpoints.add(endpoint);
+				cumulativeWeights.add(total);
+			}
+		}
+		if (endpoints.isEmpty()) {
+			throw new IllegalArgumentException("No endpoint in the mix can be called by " + role);
+		}
+		this.session = HttpClient.newBuilder()
+				.cookieHandler(new CookieManager())
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.connectTimeout(TIMEOUT)
+				.build();
+		this.anonymous = HttpClient.newBuilder()
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.connectTimeout(TIMEOUT)
+				.build();
+	}
+
+	@Override
+	public LatencyRecorder call() throws Exception {
+		try {
+			login();
+			LatencyRecorder warmup = new LatencyRecorder();
+			for (int i = 0; i < warmupRequests; i++) {
+				send(pick(), warmup);
+			}
+		} catch (Exception ex) {
+			breakBarrier();
+			throw ex;
+		}
+		warmedUp.await(timeoutSeconds, TimeUnit.SECONDS);
+		LatencyRecorder recorder = new LatencyRecorder();
+		for (int i = 0; i < requests; i++) {
+			send(pick(), recorder);
+		}
+		return recorder;
+	}
+
+	/**
+	 * A zero timeout await trips the barrier if this was the last virtual user missing,
+	 * else breaks it so every virtual user waiting or still to arrive gets an exception
+	 */
+	private void breakBarrier() {
+		try {
+			warmedUp.await(0, TimeUnit.NANOSECONDS);
+		} catch (TimeoutException | BrokenBarrierException ex) {
+			//expected: the barrier is now broken
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private boolean canCall(Endpoint endpoint) {
+		//every logged in user has the USER role; only admins may add books
+		return endpoint.getRole() != Endpoint.Role.ADMIN || role == Endpoint.Role.ADMIN;
+	}
+
+	private Endpoint pick() {
+		int value = random.nextInt(cumulativeWeights.get(cumulativeWeights.size() - 1));
+		for (int i = 0; i < endpoints.size(); i++) {
+			if (value < cumulativeWeights.get(i)) {
+				return endpoints.get(i);
+			}
+		}
+		return endpoints.get(endpoints.size() - 1);
+	}
+
+	private void login() throws IOException, InterruptedException {
+		HttpResponse<Void> response = session.send(
+				form("/login", "username=" + encode(username) + "&password=" + encode(password)),
+				HttpResponse.BodyHandlers.discarding());
+		String location = response.headers().firstValue("Location").orElse("");
+		if (response.statusCode() != 302 || location.contains("error")) {
+			throw new IllegalStateException("Could not log in as " + username);
+		}
+	}
+
+	private void send(Endpoint endpoint, LatencyRecorder recorder) throws InterruptedException {
+		Long bookId = bookIds.get(random.nextInt(bookIds.size()));
+		HttpClient client = session;
+		HttpRequest request;
+		switch (endpoint) {
+		case HOME:
+			client = anonymous;
+			request = get("/");
+			break;
+		case BOOK_REVIEWS:
+			client = anonymous;
+			request = get("/books/reviews/" + bookId);
+			break;
+		case REST_BOOK:
+			client = anonymous;
+			request = get("/books/" + bookId);
+			break;
+		case USER_HOME:
+			request = get("/user");
+			break;
+		case ADD_REVIEW:
+			String text = "Load test review " + sequence.incrementAndGet() + " by " + username;
+			request = form("/user/add-review", "text=" + encode(text) + "&bookId=" + bookId);
+			break;
+		case ADMIN_ADD_BOOK:
+			long number = sequence.incrementAndGet();
+			request = form("/admin/add-book", "title=" + encode("Load Test Book " + number)
+					+ "&author=" + encode(username));
+			break;
+		default:
+			throw new IllegalStateException("Unknown endpoint " + endpoint);
+		}
+		long start = System.nanoTime();
+		int status;
+		try {
+			status = client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode();
+		} catch (IOException ex) {
+			status = 0;
+		}
+		recorder.record(endpoint, System.nanoTime() - start, status);
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(TIMEOUT).GET().build();
+	}
+
+	private HttpRequest form(String path, String body) {
+		return HttpRequest.newBuilder(baseUri.resolve(path))
+				.timeout(TIMEOUT)
+				.header("Content-Type", "application/x-www-form-urlencoded")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	private static String encode(String value) {
+		return URLEncoder.encode(value, StandardCharsets.UTF_8);
+	}
+}
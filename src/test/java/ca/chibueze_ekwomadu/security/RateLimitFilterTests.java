@@ -0,0 +1,155 @@
+package ca.chibueze_ekwomadu.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrlPattern;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import ca.chibueze_ekwomadu.beans.Review;
+import ca.chibueze_ekwomadu.database.DatabaseAccess;
+
+/**
+ * Each test uses its own IP address or user, so the buckets don't carry over between tests.
+ */
+@SpringBootTest(properties = {
+		//own database so it doesn't clash with other test contexts
+		"spring.datasource.url=jdbc:h2:mem:ratelimittest",
+		"library.rate-limit.capacity=3",
+		"library.rate-limit.refill-per-second=0.5",
+		"library.rate-limit.max-concurrent-writes=1" })
+@AutoConfigureMockMvc
+class RateLimitFilterTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private RateLimiter rateLimiter;
+
+	@SpyBean
+	private DatabaseAccess database;
+
+	@Test
+	void throttlesBurstOfBookPosts() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(postBook("10.0.0.1", "Burst " + i)).andExpect(status().isCreated());
+		}
+		mvc.perform(postBook("10.0.0.1", "Burst 3"))
+			.andExpect(status().isTooManyRequests())
+			//the 2 s wait less the time the first posts took, rounded up
+			.andExpect(header().string("Retry-After", anyOf(is("1"), is("2"))))
+			.andExpect(jsonPath("$.status").value("error"))
+			.andExpect(jsonPath("$.message").value("Too many requests, slow down"));
+	}
+
+	@Test
+	void neverThrottlesReads() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(postBook("10.0.0.2", "Read " + i)).andExpect(status().isCreated());
+		}
+		mvc.perform(postBook("10.0.0.2", "Read 3")).andExpect(status().isTooManyRequests());
+		for (int i = 0; i < 10; i++) {
+			mvc.perform(get("/books/1").with(remoteAddr("10.0.0.2"))).andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	void neverThrottlesH2Console() throws Exception {
+		//the console servlet isn't part of MockMvc, so the request ends in a 404 past the filter
+		for (int i = 0; i < 5; i++) {
+			mvc.perform(post("/h2-console/login.do").with(remoteAddr("10.0.0.3")))
+				.andExpect(status().isNotFound());
+		}
+	}
+
+	@Test
+	void busyServerDoesNotSpendTokens() throws Exception {
+		//hold the only write permit, as a long running write would
+		assertTrue(rateLimiter.tryAcquireWrite());
+		try {
+			for (int i = 0; i < 5; i++) {
+				mvc.perform(postBook("10.0.0.5", "Busy " + i))
+					.andExpect(status().isTooManyRequests())
+					.andExpect(jsonPath("$.message").value("Server is busy, try again shortly"));
+			}
+		} finally {
+			rateLimiter.releaseWrite();
+		}
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(postBook("10.0.0.5", "After busy " + i)).andExpect(status().isCreated());
+		}
+		mvc.perform(postBook("10.0.0.5", "After busy 3")).andExpect(status().isTooManyRequests());
+	}
+
+	@Test
+	void deniedRequestsDoNotSpendTokens() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			mvc.perform(post("/user/add-review").with(remoteAddr("10.0.0.4"))
+					.param("text", "Anonymous " + i).param("bookId", "1"))
+				.andExpect(status().is3xxRedirection())
+				.andExpect(redirectedUrlPattern("**/login"));
+		}
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(postBook("10.0.0.4", "After denied " + i)).andExpect(status().isCreated());
+		}
+	}
+
+	@Test
+	void releasesPermitWhenDownstreamThrows() throws Exception {
+		doThrow(new IllegalStateException("database down")).when(database).addReview(any(Review.class));
+		try {
+			assertThrows(Exception.class, () -> mvc.perform(post("/user/add-review")
+					.with(user("bugs").roles("USER"))
+					.param("text", "Fails").param("bookId", "1")));
+		} finally {
+			reset(database);
+		}
+		//only one write may run at a time, so a leaked permit would make this a 429
+		mvc.perform(post("/user/add-review").with(user("bugs").roles("USER"))
+				.param("text", "Works after failure").param("bookId", "1"))
+			.andExpect(status().isOk());
+	}
+
+	@Test
+	void roundsRetryAfterUpToWholeSeconds() {
+		assertEquals(1, RateLimitFilter.retryAfterSeconds(1));
+		assertEquals(1, RateLimitFilter.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1)));
+		assertEquals(2, RateLimitFilter.retryAfterSeconds(TimeUnit.SECONDS.toNanos(1) + 1));
+	}
+
+	private MockHttpServletRequestBuilder postBook(String address, String title) {
+		return post("/books").with(remoteAddr(address))
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"" + title + "\",\"author\":\"Tester\"}");
+	}
+
+	private static RequestPostProcessor remoteAddr(String address) {
+		return request -> {
+			request.setRemoteAddr(address);
+			return request;
+		};
+	}
+}
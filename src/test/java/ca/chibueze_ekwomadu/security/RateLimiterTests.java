@@ -0,0 +1,83 @@
+package ca.chibueze_ekwomadu.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTests {
+
+	//refill of 4 per second gives one token every 250 ms
+	private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(250);
+
+	private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+	@Test
+	void admitsCapacityThenRejectsForOneInterval() {
+		RateLimiter limiter = new RateLimiter(3, 4, 1, 100, clock::get);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, limiter.tryConsume("user:bugs"));
+		}
+		assertEquals(INTERVAL, limiter.tryConsume("user:bugs"));
+		//other clients have their own bucket
+		assertEquals(0, limiter.tryConsume("user:daffy"));
+	}
+
+	@Test
+	void givesOneTokenBackAfterOneInterval() {
+		RateLimiter limiter = new RateLimiter(3, 4, 1, 100, clock::get);
+		for (int i = 0; i < 3; i++) {
+			limiter.tryConsume("ip:10.0.0.1");
+		}
+		clock.addAndGet(INTERVAL / 2);
+		assertEquals(INTERVAL / 2, limiter.tryConsume("ip:10.0.0.1"));
+		clock.addAndGet(INTERVAL / 2);
+		assertEquals(0, limiter.tryConsume("ip:10.0.0.1"));
+		assertEquals(INTERVAL, limiter.tryConsume("ip:10.0.0.1"));
+	}
+
+	@Test
+	void usesOverflowBucketsOnceFullAndSweepsIdleClients() {
+		RateLimiter limiter = new RateLimiter(1, 4, 1, 2, clock::get);
+		assertEquals(0, limiter.tryConsume("ip:10.0.0.1"));
+		assertEquals(0, limiter.tryConsume("ip:10.0.0.2"));
+		//no room left, so this client gets a shared overflow bucket rather than its own
+		assertEquals(0, limiter.tryConsume("ip:10.0.0.3"));
+		assertTrue(limiter.tryConsume("ip:10.0.0.3") > 0);
+		assertEquals(2, limiter.getTrackedClients());
+
+		//both buckets are still refilling, so the sweep keeps them
+		limiter.sweep();
+		assertEquals(2, limiter.getTrackedClients());
+
+		//once they are full again the sweep frees their places
+		clock.addAndGet(INTERVAL);
+		limiter.sweep();
+		assertEquals(0, limiter.getTrackedClients());
+		assertEquals(0, limiter.tryConsume("ip:10.0.0.4"));
+		assertEquals(1, limiter.getTrackedClients());
+	}
+
+	@Test
+	void limitsConcurrentWrites() {
+		RateLimiter limiter = new RateLimiter(3, 4, 2, 100, clock::get);
+		assertTrue(limiter.tryAcquireWrite());
+		assertTrue(limiter.tryAcquireWrite());
+		assertFalse(limiter.tryAcquireWrite());
+		limiter.releaseWrite();
+		assertTrue(limiter.tryAcquireWrite());
+	}
+
+	@Test
+	void rejectsNonPositiveSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 4, 1, 100, clock::get));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(3, 0, 1, 100, clock::get));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(3, 4, 0, 100, clock::get));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(3, 4, 1, 0, clock::get));
+	}
+}